@@ -24,6 +24,25 @@ public class LexiconNode implements Iterable<LexiconNode> {
         this.value = value;
     }
     
+    /**
+     * Copy constructor
+     * Makes a shallow copy of another node: same char and finality, and a new list holding the same children.
+     * Used for path copying, so the copy can be changed without touching the original.
+     * The new list is given the capacity it would have reached by adding the children one at a time,
+     * so copies grow the same way as other nodes (which is what LexiconStats assumes).
+     * 
+     * @param other - the node to be copied
+     */
+    public LexiconNode(LexiconNode other){
+        this.value = other.value;
+        this.finality = other.finality;
+        if (! other.children.isEmpty()) {
+            this.children = new ArrayList<LexiconNode>(LexiconStats.capacityFor(other.children.size()));
+            this.children.addAll(other.children);
+        }
+        this.childrenNum = other.childrenNum;
+    }
+    
     /**
      * getValue
      * gets the char
@@ -60,6 +79,29 @@ public class LexiconNode implements Iterable<LexiconNode> {
     
 
 
+    /**
+     * Set child
+     * Puts the given node in as a child, replacing any existing child with the same char,
+     * otherwise inserting it so the children stay in alphabetical order
+     * 
+     * @param child - the node to be put in as a child
+     */
+    public void setChild(LexiconNode child) {
+        for (int i = 0; i < this.children.size(); i++) {
+            if (child.getValue() == children.get(i).getValue()) {
+                children.set(i, child);
+                return;
+            }
+            if (child.getValue() < children.get(i).getValue()) {
+                children.add(i, child);
+                childrenNum++;
+                return;
+            }
+        }
+        children.add(child);
+        childrenNum++;
+    }
+
     /**
      * Gets child by index
      * 
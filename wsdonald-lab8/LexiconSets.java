@@ -0,0 +1,272 @@
+/**
+ * LexiconSets
+ *
+ * Set algebra between two lexicons: union, intersection, difference and symmetric difference.
+ * Rather than looking every word of one lexicon up in the other, both tries are walked together
+ * (their children are kept in alphabetical order, so each level is a merge of two sorted lists)
+ * and the result trie is built in that same pass. The cost is proportional to the node counts of the
+ * two inputs, with no per-word re-traversal. Branches that end up holding no words are left out.
+ *
+ * LexiconTrie inputs can still be changed afterwards, so their nodes are copied into the result.
+ * PersistentLexiconTrie versions never change, so any subtree the result takes whole from one side
+ * is shared rather than copied, and a subtree that both versions share is never walked at all.
+ * The words in shared subtrees are worked out from the first version's word count instead:
+ * everything it holds that the walk didn't see. So combining two versions that differ by a few
+ * edits costs about as much as the edited paths, not the whole dictionary.
+ *
+ * @author WS Donaldson
+ */
+public class LexiconSets {
+
+    private enum Op { UNION, INTERSECTION, DIFFERENCE, SYMMETRIC_DIFFERENCE }
+
+    private LexiconSets() {
+
+    }
+
+    /**
+     * union
+     *
+     * @param a - the first lexicon
+     * @param b - the second lexicon
+     * @return LexiconTrie - a new lexicon of the words in either one
+     */
+    public static LexiconTrie union(LexiconTrie a, LexiconTrie b) {
+        return combine(a, b, Op.UNION);
+    }
+
+    /**
+     * intersection
+     *
+     * @param a - the first lexicon
+     * @param b - the second lexicon
+     * @return LexiconTrie - a new lexicon of the words in both
+     */
+    public static LexiconTrie intersection(LexiconTrie a, LexiconTrie b) {
+        return combine(a, b, Op.INTERSECTION);
+    }
+
+    /**
+     * difference
+     *
+     * @param a - the first lexicon
+     * @param b - the second lexicon
+     * @return LexiconTrie - a new lexicon of the words in a but not in b
+     */
+    public static LexiconTrie difference(LexiconTrie a, LexiconTrie b) {
+        return combine(a, b, Op.DIFFERENCE);
+    }
+
+    /**
+     * symmetricDifference
+     *
+     * @param a - the first lexicon
+     * @param b - the second lexicon
+     * @return LexiconTrie - a new lexicon of the words in exactly one of the two
+     */
+    public static LexiconTrie symmetricDifference(LexiconTrie a, LexiconTrie b) {
+        return combine(a, b, Op.SYMMETRIC_DIFFERENCE);
+    }
+
+    /**
+     * union, sharing subtrees with the two versions
+     *
+     * @param a - the first version
+     * @param b - the second version
+     * @return PersistentLexiconTrie - a new version holding the words in either one
+     */
+    public static PersistentLexiconTrie union(PersistentLexiconTrie a, PersistentLexiconTrie b) {
+        return combine(a, b, Op.UNION);
+    }
+
+    /**
+     * intersection, sharing subtrees with the two versions
+     *
+     * @param a - the first version
+     * @param b - the second version
+     * @return PersistentLexiconTrie - a new version holding the words in both
+     */
+    public static PersistentLexiconTrie intersection(PersistentLexiconTrie a, PersistentLexiconTrie b) {
+        return combine(a, b, Op.INTERSECTION);
+    }
+
+    /**
+     * difference, sharing subtrees with the two versions
+     *
+     * @param a - the first version
+     * @param b - the second version
+     * @return PersistentLexiconTrie - a new version holding the words in a but not in b
+     */
+    public static PersistentLexiconTrie difference(PersistentLexiconTrie a, PersistentLexiconTrie b) {
+        return combine(a, b, Op.DIFFERENCE);
+    }
+
+    /**
+     * symmetricDifference, sharing subtrees with the two versions
+     *
+     * @param a - the first version
+     * @param b - the second version
+     * @return PersistentLexiconTrie - a new version holding the words in exactly one of the two
+     */
+    public static PersistentLexiconTrie symmetricDifference(PersistentLexiconTrie a, PersistentLexiconTrie b) {
+        return combine(a, b, Op.SYMMETRIC_DIFFERENCE);
+    }
+
+    private static LexiconTrie combine(LexiconTrie a, LexiconTrie b, Op op) {
+        int[] count = new int[2];
+        LexiconNode root = merge(a.root(), b.root(), op, false, count);
+        return new LexiconTrie(root == null ? new LexiconNode(' ') : root, count[0]);
+    }
+
+    private static PersistentLexiconTrie combine(PersistentLexiconTrie a, PersistentLexiconTrie b, Op op) {
+        int[] count = new int[2];
+        LexiconNode root = merge(a.root(), b.root(), op, true, count);
+        int words = count[0];
+        if (op == Op.UNION || op == Op.INTERSECTION) {
+            words += a.numWords() - count[1]; //The words in subtrees both versions share
+        }
+        return new PersistentLexiconTrie(root == null ? new LexiconNode(' ') : root, words);
+    }
+
+    /**
+     * merge
+     * Walks two matching nodes (either may be null) and builds the node of the result
+     *
+     * @param a - the node from the first trie, or null if the first trie has no such path
+     * @param b - the node from the second trie, or null if the second trie has no such path
+     * @param op - which set operation is being done
+     * @param share - whether subtrees of the inputs may be used in the result as they are
+     * @param count - count[0] is added to for every word put in the result, except words of subtrees
+     *                  the two versions share when sharing; count[1] for every word of a the walk sees
+     * @return LexiconNode - the result node, or null if no words of the result go through it
+     */
+    private static LexiconNode merge(LexiconNode a, LexiconNode b, Op op, boolean share, int[] count) {
+        if (a == null && b == null) {
+            return null;
+        }
+        if (a == b) { //Only happens when versions share a subtree: the words on both sides are the same
+            if (op == Op.UNION || op == Op.INTERSECTION) {
+                return share ? a : keep(a, count); //Shared words are counted in combine, without walking them
+            }
+            return null;
+        }
+        if (b == null) {
+            if (! share) {
+                return op == Op.INTERSECTION ? null : keep(a, count);
+            }
+            int words = countWords(a);
+            count[1] += words;
+            if (op == Op.INTERSECTION || words == 0) {
+                return null;
+            }
+            count[0] += words;
+            return a;
+        }
+        if (a == null) {
+            if (op == Op.INTERSECTION || op == Op.DIFFERENCE) {
+                return null;
+            }
+            if (! share) {
+                return keep(b, count);
+            }
+            int words = countWords(b);
+            count[0] += words;
+            return words == 0 ? null : b;
+        }
+
+        if (a.isWord()) {
+            count[1]++;
+        }
+
+        LexiconNode result = new LexiconNode(a.getValue());
+        if (isWord(a.isWord(), b.isWord(), op)) {
+            result.isWord(true);
+            count[0]++;
+        }
+        int i = 0;
+        int j = 0;
+        LexiconNode childA = a.getChild(i);
+        LexiconNode childB = b.getChild(j);
+        while (childA != null || childB != null) {
+            LexiconNode merged;
+            if (childB == null || (childA != null && childA.getValue() < childB.getValue())) {
+                merged = merge(childA, null, op, share, count);
+                childA = a.getChild(++i);
+            }
+            else if (childA == null || childB.getValue() < childA.getValue()) {
+                merged = merge(null, childB, op, share, count);
+                childB = b.getChild(++j);
+            }
+            else {
+                merged = merge(childA, childB, op, share, count);
+                childA = a.getChild(++i);
+                childB = b.getChild(++j);
+            }
+            if (merged != null) {
+                result.setChild(merged); //Children come out in order, so this always appends
+            }
+        }
+        if (! result.isWord() && result.getChild(0) == null) {
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * isWord
+     *
+     * @return boolean - whether a word on one or both sides is a word of the result
+     */
+    private static boolean isWord(boolean inA, boolean inB, Op op) {
+        switch (op) {
+            case UNION:
+                return inA || inB;
+            case INTERSECTION:
+                return inA && inB;
+            case DIFFERENCE:
+                return inA && ! inB;
+            default:
+                return inA != inB;
+        }
+    }
+
+    /**
+     * keep
+     * Copies a whole subtree of one input into the result, leaving out branches with no words
+     *
+     * @param node - the subtree to keep
+     * @param count - count[0] is added to for every word in the subtree
+     * @return LexiconNode - the copy for the result, or null if it holds no words
+     */
+    private static LexiconNode keep(LexiconNode node, int[] count) {
+        LexiconNode copy = new LexiconNode(node.getValue());
+        if (node.isWord()) {
+            copy.isWord(true);
+            count[0]++;
+        }
+        for (LexiconNode child : node) {
+            LexiconNode kept = keep(child, count);
+            if (kept != null) {
+                copy.setChild(kept);
+            }
+        }
+        if (! copy.isWord() && copy.getChild(0) == null) {
+            return null;
+        }
+        return copy;
+    }
+
+    /**
+     * countWords
+     *
+     * @param node - the top of a subtree
+     * @return int - the number of words in the subtree
+     */
+    private static int countWords(LexiconNode node) {
+        int words = node.isWord() ? 1 : 0;
+        for (LexiconNode child : node) {
+            words += countWords(child);
+        }
+        return words;
+    }
+}
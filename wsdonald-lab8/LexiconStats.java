@@ -0,0 +1,333 @@
+import java.util.Arrays;
+
+/**
+ * LexiconStats
+ *
+ * Numbers about the shape and size of a trie, for working out where the memory goes:
+ * how many nodes there are, how many children they have (from LexiconNode.totalChildren),
+ * how deep they sit, how many runs of single-child nodes there are (which a compressed trie would
+ * fold into one node), how much ArrayList capacity is sitting unused, and roughly how many bytes
+ * of heap the whole thing holds on to.
+ *
+ * of() works all this out by walking the trie. LexiconTrie.enableStatistics() instead keeps a set of
+ * stats up to date as words are added, so LexiconTrie.statistics() is cheap to call often.
+ *
+ * Byte figures are estimates for a 64-bit JVM with compressed references. List capacities are worked
+ * out from how ArrayList grows when added to one at a time, which is how LexiconTrie builds them;
+ * path-copied nodes in a PersistentLexiconTrie are sized to match (see the LexiconNode copy constructor).
+ *
+ * @author WS Donaldson
+ */
+public class LexiconStats {
+
+    // LexiconNode: 12 byte header, children reference, value, finality, childrenNum; padded to 8
+    static final int NODE_BYTES = 24;
+
+    // ArrayList: 12 byte header, modCount, size, elementData reference
+    static final int LIST_BYTES = 24;
+
+    // the array behind an ArrayList: 16 byte header plus one reference per slot, padded to 8
+    static final int ARRAY_HEADER_BYTES = 16;
+    static final int REFERENCE_BYTES = 4;
+
+    // the capacity an ArrayList made with no arguments takes on its first add
+    private static final int FIRST_CAPACITY = 10;
+
+    private long nodes;
+    private long[] childHistogram = new long[1];
+    private long[] depthHistogram = new long[1];
+    private long singleChildNodes;
+    private long singleChildChains;
+    private long usedSlots;
+    private long capacitySlots;
+    private long arrayBytes;
+
+    private LexiconStats() {
+
+    }
+
+    /**
+     * of
+     * Walks a trie and works out its stats
+     *
+     * @param lexicon - the trie to look at
+     * @return LexiconStats - the stats
+     */
+    public static LexiconStats of(LexiconTrie lexicon) {
+        return of(lexicon.root());
+    }
+
+    /**
+     * of
+     * Walks the current version and works out its stats. Nodes it shares with other versions are counted in full.
+     *
+     * @param lexicon - the version to look at
+     * @return LexiconStats - the stats
+     */
+    public static LexiconStats of(PersistentLexiconTrie lexicon) {
+        return of(lexicon.root());
+    }
+
+    /**
+     * of
+     *
+     * @param root - the root of the trie to look at
+     * @return LexiconStats - the stats
+     */
+    static LexiconStats of(LexiconNode root) {
+        LexiconStats stats = new LexiconStats();
+        stats.walk(root, 0, false);
+        return stats;
+    }
+
+    /**
+     * walk
+     * Adds a node and everything below it to the stats
+     *
+     * @param current - the node being counted
+     * @param depth - how far the node is below the root
+     * @param parentSingle - whether the node's parent has exactly one child
+     */
+    private void walk(LexiconNode current, int depth, boolean parentSingle) {
+        int children = current.totalChildren();
+        nodes++;
+        childHistogram = bump(childHistogram, children, 1);
+        depthHistogram = bump(depthHistogram, depth, 1);
+        usedSlots += children;
+        capacitySlots += capacityFor(children);
+        arrayBytes += arrayBytesFor(children);
+        if (children == 1) {
+            singleChildNodes++;
+            if (! parentSingle) {
+                singleChildChains++;
+            }
+        }
+        for (LexiconNode child : current) {
+            walk(child, depth + 1, children == 1);
+        }
+    }
+
+    /**
+     * childAdded
+     * Keeps the stats up to date when a new child is about to be added to a node
+     *
+     * @param parent - the parent of the node getting the child, or null if that node is the root
+     * @param node - the node getting the child, before the child is added
+     * @param depth - how far the new child will be below the root
+     */
+    void childAdded(LexiconNode parent, LexiconNode node, int depth) {
+        int before = node.totalChildren();
+        boolean parentSingle = parent != null && parent.totalChildren() == 1;
+
+        childHistogram = bump(childHistogram, before, -1);
+        childHistogram = bump(childHistogram, before + 1, 1);
+        usedSlots++;
+        capacitySlots += capacityFor(before + 1) - capacityFor(before);
+        arrayBytes += arrayBytesFor(before + 1) - arrayBytesFor(before);
+
+        if (before == 0) {
+            singleChildNodes++;
+            if (! parentSingle) {
+                singleChildChains++;
+            }
+        }
+        else if (before == 1) {
+            singleChildNodes--;
+            if (! parentSingle) {
+                singleChildChains--; //The node ended a chain run from above, or was a chain on its own
+            }
+            if (node.getChild(0).totalChildren() == 1) {
+                singleChildChains++; //Its only child was partway through a chain, and now starts one
+            }
+        }
+
+        //The new child itself: a leaf at the given depth
+        nodes++;
+        childHistogram = bump(childHistogram, 0, 1);
+        depthHistogram = bump(depthHistogram, depth, 1);
+    }
+
+    /**
+     * copy
+     *
+     * @return LexiconStats - a copy that won't change when these stats do
+     */
+    LexiconStats copy() {
+        LexiconStats copy = new LexiconStats();
+        copy.nodes = nodes;
+        copy.childHistogram = childHistogram.clone();
+        copy.depthHistogram = depthHistogram.clone();
+        copy.singleChildNodes = singleChildNodes;
+        copy.singleChildChains = singleChildChains;
+        copy.usedSlots = usedSlots;
+        copy.capacitySlots = capacitySlots;
+        copy.arrayBytes = arrayBytes;
+        return copy;
+    }
+
+    /**
+     * nodeCount
+     *
+     * @return long - the number of nodes, including the root
+     */
+    public long nodeCount() {
+        return nodes;
+    }
+
+    /**
+     * childHistogram
+     *
+     * @return long[] - entry i is the number of nodes with i children
+     */
+    public long[] childHistogram() {
+        return childHistogram.clone();
+    }
+
+    /**
+     * depthHistogram
+     *
+     * @return long[] - entry i is the number of nodes i steps below the root
+     */
+    public long[] depthHistogram() {
+        return depthHistogram.clone();
+    }
+
+    /**
+     * singleChildNodes
+     *
+     * @return long - the number of nodes with exactly one child
+     */
+    public long singleChildNodes() {
+        return singleChildNodes;
+    }
+
+    /**
+     * singleChildChains
+     *
+     * @return long - the number of unbroken runs of single-child nodes
+     */
+    public long singleChildChains() {
+        return singleChildChains;
+    }
+
+    /**
+     * wastedSlots
+     *
+     * @return long - the number of ArrayList slots allocated but not holding a child
+     */
+    public long wastedSlots() {
+        return capacitySlots - usedSlots;
+    }
+
+    /**
+     * nodeBytes
+     *
+     * @return long - estimated bytes taken by the LexiconNode objects themselves
+     */
+    public long nodeBytes() {
+        return nodes * NODE_BYTES;
+    }
+
+    /**
+     * listBytes
+     *
+     * @return long - estimated bytes taken by the children ArrayList objects, not counting their arrays
+     */
+    public long listBytes() {
+        return nodes * LIST_BYTES;
+    }
+
+    /**
+     * arrayBytes
+     *
+     * @return long - estimated bytes taken by the arrays behind the children lists
+     */
+    public long arrayBytes() {
+        return arrayBytes;
+    }
+
+    /**
+     * wastedBytes
+     *
+     * @return long - estimated bytes of the arrays taken up by unused slots (already part of arrayBytes)
+     */
+    public long wastedBytes() {
+        return wastedSlots() * REFERENCE_BYTES;
+    }
+
+    /**
+     * totalBytes
+     *
+     * @return long - estimated bytes of heap held by the trie
+     */
+    public long totalBytes() {
+        return nodeBytes() + listBytes() + arrayBytes();
+    }
+
+    /**
+     * toString
+     *
+     * @return String - a report of all the stats
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("nodes:               ").append(nodes).append("\n");
+        sb.append("children per node:   ").append(Arrays.toString(childHistogram)).append("\n");
+        sb.append("nodes at each depth: ").append(Arrays.toString(depthHistogram)).append("\n");
+        sb.append("single-child nodes:  ").append(singleChildNodes).append("\n");
+        sb.append("single-child chains: ").append(singleChildChains).append("\n");
+        sb.append("wasted list slots:   ").append(wastedSlots()).append("\n");
+        sb.append("estimated bytes:     ").append(totalBytes()).append("\n");
+        sb.append("  nodes:             ").append(nodeBytes()).append("\n");
+        sb.append("  lists:             ").append(listBytes()).append("\n");
+        sb.append("  arrays:            ").append(arrayBytes()).append("\n");
+        sb.append("    unused slots:    ").append(wastedBytes()).append("\n");
+        return sb.toString();
+    }
+
+    /**
+     * capacityFor
+     *
+     * @param size - the number of children a node has had added
+     * @return int - the capacity its ArrayList has grown to
+     */
+    static int capacityFor(int size) {
+        if (size == 0) {
+            return 0; //An empty list shares one empty array
+        }
+        int capacity = FIRST_CAPACITY;
+        while (capacity < size) {
+            capacity += capacity >> 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * arrayBytesFor
+     *
+     * @param size - the number of children a node has had added
+     * @return long - the bytes taken by the array behind its list
+     */
+    static long arrayBytesFor(int size) {
+        int capacity = capacityFor(size);
+        if (capacity == 0) {
+            return 0;
+        }
+        long bytes = ARRAY_HEADER_BYTES + (long) capacity * REFERENCE_BYTES;
+        return (bytes + 7) / 8 * 8;
+    }
+
+    /**
+     * bump
+     * Adds to one entry of a histogram, making the histogram longer if need be
+     *
+     * @return long[] - the histogram, which may be a new longer array
+     */
+    private static long[] bump(long[] histogram, int index, long amount) {
+        if (index >= histogram.length) {
+            histogram = Arrays.copyOf(histogram, index + 1);
+        }
+        histogram[index] += amount;
+        return histogram;
+    }
+}
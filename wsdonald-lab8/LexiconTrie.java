@@ -6,6 +6,10 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.HashSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 //Problems - File/Scrabble dictionary not working despite things working on smaller scale (why?)
 //Could also be a problem with my addWord or addChild which I thought were solid. Could also be a problem with contains
@@ -21,13 +25,34 @@ import java.util.HashSet;
  */
 
 public class LexiconTrie implements Lexicon{
-    private static int totalWords;
+    private int totalWords;
     private LexiconNode root = new LexiconNode(' ');
+    private LexiconStats stats = null; // kept up to date on add once enableStatistics is called
 
     public LexiconTrie() {
 
     }
 
+    /**
+     * Constructor around an already built structure (used by LexiconSets)
+     * 
+     * @param root - the root node, which the new trie takes ownership of
+     * @param totalWords - the number of words under that root
+     */
+    LexiconTrie(LexiconNode root, int totalWords) {
+        this.root = root;
+        this.totalWords = totalWords;
+    }
+
+    /**
+     * root
+     * 
+     * @return LexiconNode - the root node of the trie
+     */
+    LexiconNode root() {
+        return root;
+    }
+
     /**
      * addWord
      * Takes a string and adds it to the lexicon
@@ -37,6 +62,7 @@ public class LexiconTrie implements Lexicon{
      */
     public boolean addWord(String str) {
         LexiconNode current = root;
+        LexiconNode parent = null;
 
         if (this.containsWord(str)) {
             return false;
@@ -44,10 +70,15 @@ public class LexiconTrie implements Lexicon{
         else {
             for (int i = 0; i < str.length(); i++) {
                 if (current.getChild(str.charAt(i)) == null) {
+                    if (stats != null) {
+                        stats.childAdded(parent, current, i + 1);
+                    }
                     current.addChild(str.charAt(i));
+                    parent = current;
                     current = current.getChild(str.charAt(i));
                 }
                 else {
+                    parent = current;
                     current = current.getChild(str.charAt(i));
                 }
             }
@@ -57,6 +88,30 @@ public class LexiconTrie implements Lexicon{
         return true;
     }
 
+    /**
+     * enableStatistics
+     * Walks the trie once, then keeps its stats up to date as words are added, so statistics() costs nothing to call.
+     * Nothing needs updating on removeWord, since removing a word leaves its nodes in place.
+     */
+    public void enableStatistics() {
+        if (stats == null) {
+            stats = LexiconStats.of(root);
+        }
+    }
+
+    /**
+     * statistics
+     * Gives the size and shape of the trie. Walks the whole trie unless enableStatistics has been called.
+     * 
+     * @return LexiconStats - the stats as they are now
+     */
+    public LexiconStats statistics() {
+        if (stats != null) {
+            return stats.copy();
+        }
+        return LexiconStats.of(root);
+    }
+
     /**
      * addWordsFromFile
      * Takes a file in which all the words are seperated by line, all all lower case, 
@@ -177,7 +232,7 @@ public class LexiconTrie implements Lexicon{
      * @param current- the current node being examined
      * @param words - the list which is added to
      */
-    private void buildList(String prefix, LexiconNode current, ArrayList<String> words) {
+    static void buildList(String prefix, LexiconNode current, ArrayList<String> words) {
         prefix += current.getValue();
         if (current.getChild(0) == null) {
             if (current.isWord()) {
@@ -224,14 +279,13 @@ public class LexiconTrie implements Lexicon{
      * @param prefix - builds up the path taken to the final node in the word
      * @param current - the node that is currently being examined.
      */
-    private void buildCorrections(String target, int flexibility, Set<String> corrections, String prefix, LexiconNode current) {
+    static void buildCorrections(String target, int flexibility, Set<String> corrections, String prefix, LexiconNode current) {
         prefix += current.getValue();
         if (flexibility < 0) {
             //Stop the recursive madness
         }
         else if (target.length() == 0){
             if (current.isWord()) {
-                System.out.println("target.length() == 0 clause activated");
                 corrections.add(prefix);
             }
         }
@@ -260,6 +314,31 @@ public class LexiconTrie implements Lexicon{
         return matches;
     }
 
+    /**
+     * parallelSuggestCorrections
+     * Same as suggestCorrections, but splits the search over the common fork-join pool.
+     * The trie must not be changed while it runs.
+     * 
+     * @param target - the word to be corrected
+     * @param maxDistance - the number of changes from the target one can make
+     * @return Set<String> - The set of possible corrections
+     */
+    public Set<String> parallelSuggestCorrections(String target, int maxDistance) {
+        return ParallelLexiconSearch.suggestCorrections(root, target, maxDistance, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * parallelMatchRegex
+     * Same as matchRegex, but splits the search over the common fork-join pool.
+     * The trie must not be changed while it runs.
+     * 
+     * @param pattern - the regex
+     * @return Set<String> - the matches
+     */
+    public Set<String> parallelMatchRegex(String pattern) {
+        return ParallelLexiconSearch.matchRegex(root, pattern, ForkJoinPool.commonPool());
+    }
+
     /**
      * buildMatches
      * The recursive helper method for matchRegex - builds a list of all matches
@@ -269,7 +348,7 @@ public class LexiconTrie implements Lexicon{
      * @param prefix - builds up the path to the final node in a word
      * @param current - the node which is being examined at present (starts as the root)
      */
-    private void buildMatches(String pattern, Set<String> matches, String prefix, LexiconNode current) {
+    static void buildMatches(String pattern, Set<String> matches, String prefix, LexiconNode current) {
         prefix += current.getValue();
         if (pattern.length() == 0) {
             if (current.isWord()) {
@@ -308,6 +387,215 @@ public class LexiconTrie implements Lexicon{
         }
     }
 
+    /**
+     * suggestCorrections (streaming)
+     * Hands each correction to the consumer as soon as the walk finds it, instead of building a set.
+     * Stops early once the budget runs out or is cancelled.
+     * 
+     * @param target - the word to be corrected
+     * @param maxDistance - the number of changes from the target one can make
+     * @param consumer - gets each correction, in alphabetical order
+     * @param budget - the limits on this query
+     * @return boolean - true if every correction was handed over, false if the query was cut short
+     */
+    public boolean suggestCorrections(String target, int maxDistance, Consumer<String> consumer, QueryBudget budget) {
+        return streamCorrections(target, 0, maxDistance, new StringBuilder(), root, consumer, budget);
+    }
+
+    /**
+     * suggestCorrectionsAsync
+     * Runs the streaming suggestCorrections on the common fork-join pool.
+     * Cancelling the returned future cancels the budget, which stops the walk.
+     * 
+     * @param target - the word to be corrected
+     * @param maxDistance - the number of changes from the target one can make
+     * @param consumer - gets each correction, on the thread running the query
+     * @param budget - the limits on this query
+     * @return CompletableFuture<Boolean> - completes with whether every correction was handed over
+     */
+    public CompletableFuture<Boolean> suggestCorrectionsAsync(String target, int maxDistance, Consumer<String> consumer, QueryBudget budget) {
+        CompletableFuture<Boolean> future = CompletableFuture.supplyAsync(() -> suggestCorrections(target, maxDistance, consumer, budget));
+        future.whenComplete((done, error) -> {
+            if (error instanceof CancellationException) {
+                budget.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * matchRegex (streaming)
+     * Hands each match to the consumer as soon as the walk finds it, instead of building a set.
+     * Unlike buildMatches, the walk keeps track of every place in the pattern a node can be matched up to,
+     * so each node is visited once and each word is handed over once, in alphabetical order, without
+     * keeping a set of what was already found. Stops early once the budget runs out or is cancelled.
+     * 
+     * @param pattern - the regex
+     * @param consumer - gets each match, in alphabetical order
+     * @param budget - the limits on this query
+     * @return boolean - true if every match was handed over, false if the query was cut short
+     */
+    public boolean matchRegex(String pattern, Consumer<String> consumer, QueryBudget budget) {
+        boolean[] start = new boolean[pattern.length() + 1];
+        start[0] = true;
+        skipEmpty(pattern, start);
+        return streamMatches(pattern, start, new StringBuilder(), root, consumer, budget);
+    }
+
+    /**
+     * matchRegexAsync
+     * Runs the streaming matchRegex on the common fork-join pool.
+     * Cancelling the returned future cancels the budget, which stops the walk.
+     * 
+     * @param pattern - the regex
+     * @param consumer - gets each match, on the thread running the query
+     * @param budget - the limits on this query
+     * @return CompletableFuture<Boolean> - completes with whether every match was handed over
+     */
+    public CompletableFuture<Boolean> matchRegexAsync(String pattern, Consumer<String> consumer, QueryBudget budget) {
+        CompletableFuture<Boolean> future = CompletableFuture.supplyAsync(() -> matchRegex(pattern, consumer, budget));
+        future.whenComplete((done, error) -> {
+            if (error instanceof CancellationException) {
+                budget.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * streamCorrections
+     * The streaming version of buildCorrections
+     * 
+     * @param target - the word to be corrected
+     * @param index - how much of the target has been matched so far
+     * @param flexibility - the number of changes which are still allowed to the target
+     * @param prefix - the path taken to the current node (put back as it was before returning)
+     * @param current - the node that is currently being examined
+     * @param consumer - gets each correction
+     * @param budget - the limits on this query
+     * @return boolean - false if the walk has to stop
+     */
+    static boolean streamCorrections(String target, int index, int flexibility, StringBuilder prefix, LexiconNode current,
+                                     Consumer<String> consumer, QueryBudget budget) {
+        if (! budget.visit()) {
+            return false;
+        }
+        prefix.append(current.getValue());
+        boolean carryOn = true;
+        if (index == target.length()) {
+            if (current.isWord()) {
+                carryOn = emit(prefix, consumer, budget);
+            }
+        }
+        else {
+            for (LexiconNode child : current) {
+                int left = child.getValue() == target.charAt(index) ? flexibility : flexibility - 1;
+                if (left >= 0 && ! streamCorrections(target, index + 1, left, prefix, child, consumer, budget)) {
+                    carryOn = false;
+                    break;
+                }
+            }
+        }
+        prefix.setLength(prefix.length() - 1);
+        return carryOn;
+    }
+
+    /**
+     * streamMatches
+     * The streaming version of buildMatches
+     * 
+     * @param pattern - the regex pattern
+     * @param states - states[i] is true if the path to the current node can match the first i characters of the pattern
+     * @param prefix - the path taken to the current node (put back as it was before returning)
+     * @param current - the node that is currently being examined
+     * @param consumer - gets each match
+     * @param budget - the limits on this query
+     * @return boolean - false if the walk has to stop
+     */
+    static boolean streamMatches(String pattern, boolean[] states, StringBuilder prefix, LexiconNode current,
+                                 Consumer<String> consumer, QueryBudget budget) {
+        if (! budget.visit()) {
+            return false;
+        }
+        prefix.append(current.getValue());
+        boolean carryOn = true;
+        if (current.isWord() && states[pattern.length()]) {
+            carryOn = emit(prefix, consumer, budget);
+        }
+        for (LexiconNode child : current) {
+            if (! carryOn) {
+                break;
+            }
+            boolean[] next = step(pattern, states, child.getValue());
+            if (next != null) {
+                carryOn = streamMatches(pattern, next, prefix, child, consumer, budget);
+            }
+        }
+        prefix.setLength(prefix.length() - 1);
+        return carryOn;
+    }
+
+    /**
+     * step
+     * Works out where in the pattern the path can be matched up to after one more character
+     * 
+     * @param pattern - the regex pattern
+     * @param states - where the path can be matched up to now
+     * @param c - the next character of the path
+     * @return boolean[] - where the longer path can be matched up to, or null if nowhere
+     */
+    private static boolean[] step(String pattern, boolean[] states, char c) {
+        boolean[] next = new boolean[states.length];
+        boolean any = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            if (states[i]) {
+                char p = pattern.charAt(i);
+                if (p == '*') {
+                    next[i] = true; // '*' takes the char and can take more
+                    any = true;
+                }
+                if (p == c || p == '_' || p == '?' || p == '*') {
+                    next[i + 1] = true;
+                    any = true;
+                }
+            }
+        }
+        if (! any) {
+            return null;
+        }
+        skipEmpty(pattern, next);
+        return next;
+    }
+
+    /**
+     * skipEmpty
+     * '?' and '*' can match nothing, so anywhere before one of them is also just after it
+     * 
+     * @param pattern - the regex pattern
+     * @param states - the states to fill in
+     */
+    private static void skipEmpty(String pattern, boolean[] states) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if (states[i] && (pattern.charAt(i) == '?' || pattern.charAt(i) == '*')) {
+                states[i + 1] = true;
+            }
+        }
+    }
+
+    /**
+     * emit
+     * Hands a result to the consumer if the budget allows
+     * 
+     * @return boolean - false if the result limit has been reached
+     */
+    private static boolean emit(StringBuilder word, Consumer<String> consumer, QueryBudget budget) {
+        if (! budget.deliver()) {
+            return false;
+        }
+        consumer.accept(word.toString());
+        return true;
+    }
+
     /**
      * Reads the user-chosen file into a string. If the file doesn't exist it returns null
      * 
@@ -316,7 +604,7 @@ public class LexiconTrie implements Lexicon{
      * 
      * Credit to Sean Barker for providing the code
      */
-    private static String readFileAsString(String filename) {
+    static String readFileAsString(String filename) {
         try {
             return new String(Files.readAllBytes(Paths.get(filename)));
         } catch (IOException e) {
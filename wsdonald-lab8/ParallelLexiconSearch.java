@@ -0,0 +1,210 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ParallelLexiconSearch
+ *
+ * Runs matchRegex and suggestCorrections as fork-join tasks, one per recursive call of
+ * buildMatches / buildCorrections near the top of the trie. A task only splits while its subtree
+ * looks big enough to be worth it (judged by how many grandchildren the node has) and while the
+ * pool is short of queued work; otherwise it runs the ordinary sequential helper from LexiconTrie.
+ * Every task collects into its own set and results are merged into a set on each join, so no set
+ * is shared between threads and duplicates never pile up. The words found are exactly those of
+ * the sequential methods.
+ *
+ * The trie must not be changed while a search is running.
+ *
+ * @author WS Donaldson
+ */
+class ParallelLexiconSearch {
+
+    // a node is only split if it has at least this many grandchildren
+    private static final int MIN_SPLIT_SIZE = 8;
+
+    // stop splitting once a worker already has this many tasks waiting beyond what it needs
+    private static final int MAX_SURPLUS_TASKS = 3;
+
+    private ParallelLexiconSearch() {
+
+    }
+
+    /**
+     * matchRegex
+     *
+     * @param root - the root of the trie to search
+     * @param pattern - the regex
+     * @param pool - the pool to run the search in
+     * @return Set<String> - the matches
+     */
+    static Set<String> matchRegex(LexiconNode root, String pattern, ForkJoinPool pool) {
+        return pool.invoke(new MatchTask(pattern, "", root));
+    }
+
+    /**
+     * suggestCorrections
+     *
+     * @param root - the root of the trie to search
+     * @param target - the word to be corrected
+     * @param maxDistance - the number of changes from the target one can make
+     * @param pool - the pool to run the search in
+     * @return Set<String> - the possible corrections
+     */
+    static Set<String> suggestCorrections(LexiconNode root, String target, int maxDistance, ForkJoinPool pool) {
+        return pool.invoke(new CorrectionTask(target, maxDistance, "", root));
+    }
+
+    /**
+     * worthSplitting
+     * Estimates the size of the subtree under a node from its grandchildren, and checks the pool still wants work
+     *
+     * @param current - the node a task is about to search
+     * @return boolean - true if the task should fork subtasks rather than run sequentially
+     */
+    private static boolean worthSplitting(LexiconNode current) {
+        if (ForkJoinTask.getSurplusQueuedTaskCount() > MAX_SURPLUS_TASKS) {
+            return false;
+        }
+        int estimate = 0;
+        for (LexiconNode child : current) {
+            estimate += child.totalChildren();
+            if (estimate >= MIN_SPLIT_SIZE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * gather
+     * Runs the subtasks and merges their results into the largest of them, so words found
+     * down more than one branch are only kept once at each level
+     *
+     * @param tasks - the subtasks
+     * @return Set<String> - everything the subtasks found
+     */
+    private static Set<String> gather(List<? extends RecursiveTask<Set<String>>> tasks) {
+        List<Set<String>> parts = new ArrayList<Set<String>>();
+        Set<String> result = null;
+        for (RecursiveTask<Set<String>> task : ForkJoinTask.invokeAll(tasks)) {
+            Set<String> part = task.join();
+            parts.add(part);
+            if (result == null || part.size() > result.size()) {
+                result = part;
+            }
+        }
+        if (result == null) {
+            return new HashSet<String>();
+        }
+        for (Set<String> part : parts) {
+            if (part != result) {
+                result.addAll(part);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * MatchTask
+     * One call of LexiconTrie.buildMatches, with the same arguments
+     */
+    private static class MatchTask extends RecursiveTask<Set<String>> {
+        private static final long serialVersionUID = 1L;
+
+        private final String pattern;
+        private final String prefix;
+        private final LexiconNode current;
+
+        MatchTask(String pattern, String prefix, LexiconNode current) {
+            this.pattern = pattern;
+            this.prefix = prefix;
+            this.current = current;
+        }
+
+        @Override
+        protected Set<String> compute() {
+            if (pattern.length() == 0 || ! worthSplitting(current)) {
+                Set<String> matches = new HashSet<String>();
+                LexiconTrie.buildMatches(pattern, matches, prefix, current);
+                return matches;
+            }
+
+            //Same branches as buildMatches, but each recursive call becomes a task
+            String path = prefix + current.getValue();
+            String rest = pattern.substring(1);
+            List<MatchTask> tasks = new ArrayList<MatchTask>();
+            if (pattern.charAt(0) == '_') {
+                for (LexiconNode child : current) {
+                    tasks.add(new MatchTask(rest, path, child));
+                }
+            }
+            else if (pattern.charAt(0) == '?') {
+                tasks.add(new MatchTask(rest, prefix, current));
+                for (LexiconNode child : current) {
+                    tasks.add(new MatchTask(rest, path, child));
+                }
+            }
+            else if (pattern.charAt(0) == '*') {
+                for (LexiconNode child : current) {
+                    tasks.add(new MatchTask(rest, path, child));
+                    tasks.add(new MatchTask(pattern, path, child));
+                }
+                tasks.add(new MatchTask(rest, prefix, current));
+            }
+            else {
+                for (LexiconNode child : current) {
+                    if (child.getValue() == pattern.charAt(0)) {
+                        tasks.add(new MatchTask(rest, path, child));
+                    }
+                }
+            }
+            return gather(tasks);
+        }
+    }
+
+    /**
+     * CorrectionTask
+     * One call of LexiconTrie.buildCorrections, with the same arguments
+     */
+    private static class CorrectionTask extends RecursiveTask<Set<String>> {
+        private static final long serialVersionUID = 1L;
+
+        private final String target;
+        private final int flexibility;
+        private final String prefix;
+        private final LexiconNode current;
+
+        CorrectionTask(String target, int flexibility, String prefix, LexiconNode current) {
+            this.target = target;
+            this.flexibility = flexibility;
+            this.prefix = prefix;
+            this.current = current;
+        }
+
+        @Override
+        protected Set<String> compute() {
+            if (flexibility < 0 || target.length() == 0 || ! worthSplitting(current)) {
+                Set<String> corrections = new HashSet<String>();
+                LexiconTrie.buildCorrections(target, flexibility, corrections, prefix, current);
+                return corrections;
+            }
+
+            String path = prefix + current.getValue();
+            String rest = target.substring(1);
+            List<CorrectionTask> tasks = new ArrayList<CorrectionTask>();
+            for (LexiconNode child : current) {
+                if (child.getValue() == target.charAt(0)) {
+                    tasks.add(new CorrectionTask(rest, flexibility, path, child));
+                }
+                else {
+                    tasks.add(new CorrectionTask(rest, flexibility - 1, path, child));
+                }
+            }
+            return gather(tasks);
+        }
+    }
+}
@@ -0,0 +1,425 @@
+import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * PersistentLexiconTrie
+ *
+ * A version of the trie where old versions never change. Adding or removing a word copies only the
+ * nodes on the path to that word (path copying); every other subtree is shared with the previous version.
+ * That makes a snapshot O(1) and each new version cost memory proportional to the edited path,
+ * not to the size of the dictionary.
+ *
+ * withWord and withoutWord hand back a new version and leave this one alone. The Lexicon methods addWord
+ * and removeWord move this handle on to the new version, so older snapshots keep seeing what they saw.
+ * For big batches of edits use edit(), which copies each node at most once per batch.
+ *
+ * @author WS Donaldson
+ */
+
+public class PersistentLexiconTrie implements Lexicon {
+    private LexiconNode root;
+    private int totalWords;
+
+    public PersistentLexiconTrie() {
+        this(new LexiconNode(' '), 0);
+    }
+
+    /**
+     * Constructor for a version
+     *
+     * @param root - the root of the version, which must never be changed afterwards
+     * @param totalWords - the number of words under that root
+     */
+    PersistentLexiconTrie(LexiconNode root, int totalWords) {
+        this.root = root;
+        this.totalWords = totalWords;
+    }
+
+    /**
+     * snapshot
+     * Freezes the current version. Runs in constant time since nothing is copied.
+     *
+     * @return PersistentLexiconTrie - a version that later edits through this handle won't affect
+     */
+    public PersistentLexiconTrie snapshot() {
+        return new PersistentLexiconTrie(root, totalWords);
+    }
+
+    /**
+     * root
+     *
+     * @return LexiconNode - the root of the current version, which must not be changed
+     */
+    LexiconNode root() {
+        return root;
+    }
+
+    /**
+     * withWord
+     * Makes a new version with the word added
+     *
+     * @param str - the word to be added
+     * @return PersistentLexiconTrie - the new version, or this one if the word was already there
+     */
+    public PersistentLexiconTrie withWord(String str) {
+        if (this.containsWord(str)) {
+            return this;
+        }
+        return new PersistentLexiconTrie(insert(root, str, null), totalWords + 1);
+    }
+
+    /**
+     * withoutWord
+     * Makes a new version with the word taken out
+     *
+     * @param str - the word to be removed
+     * @return PersistentLexiconTrie - the new version, or this one if the word wasn't there
+     */
+    public PersistentLexiconTrie withoutWord(String str) {
+        if (! this.containsWord(str)) {
+            return this;
+        }
+        return new PersistentLexiconTrie(delete(root, str, null), totalWords - 1);
+    }
+
+    /**
+     * edit
+     * Starts a batch of edits on top of the current version
+     *
+     * @return Transient - the batch, which is turned back into a version with build()
+     */
+    public Transient edit() {
+        return new Transient(root, totalWords);
+    }
+
+    /**
+     * addWord
+     * Moves this handle on to a version with the word added. Older snapshots are unchanged.
+     *
+     * @param str - string which is to be added
+     * @return boolean, returns true if it is a new word for the Lexicon, false if it is already there
+     */
+    public boolean addWord(String str) {
+        if (this.containsWord(str)) {
+            return false;
+        }
+        root = insert(root, str, null);
+        totalWords++;
+        return true;
+    }
+
+    /**
+     * addWordsFromFile
+     * Adds every word in the file as one batch, so shared prefixes are only copied once
+     *
+     * @param filename - the name of the file to be added
+     * @return int - the number of words in the file
+     */
+    public int addWordsFromFile(String filename) {
+        Transient batch = edit();
+        int result = batch.addWordsFromFile(filename);
+        PersistentLexiconTrie built = batch.build();
+        root = built.root;
+        totalWords = built.totalWords;
+        return result;
+    }
+
+    /**
+     * removeWord
+     * Moves this handle on to a version with the word taken out. Older snapshots are unchanged.
+     *
+     * @param str - the word to be removed
+     * @return boolean - false if the word isn't there, true otherwise.
+     */
+    public boolean removeWord(String str) {
+        if (! this.containsWord(str)) {
+            return false;
+        }
+        root = delete(root, str, null);
+        totalWords--;
+        return true;
+    }
+
+    /**
+     * numWords
+     * Gives the total number of words in this version
+     *
+     * @return int - the total number of words
+     */
+    public int numWords() {
+        return totalWords;
+    }
+
+    /**
+     * containsWord
+     * Checks to see if a certain word is present in this version.
+     *
+     * @param str - the word to be checked
+     * @return boolean - true if it is there, false otherwise.
+     */
+    public boolean containsWord(String str) {
+        LexiconNode current = find(root, str);
+        return current != null && current.isWord();
+    }
+
+    /**
+     * containsPrefix
+     * checks to see if a prefix is part of this version
+     *
+     * @param prefix - the prefix to be checked
+     * @return boolean - true if it is there, false otherwise.
+     */
+    public boolean containsPrefix(String prefix) {
+        return find(root, prefix) != null;
+    }
+
+    /**
+     * Iterator
+     * Returns an iterator over all the words in this version, in alphabetical order.
+     *
+     * @return Iterator<String> is the iterator which is returned
+     */
+    public Iterator<String> iterator() {
+        ArrayList<String> words = new ArrayList<String>();
+        LexiconTrie.buildList("", root, words);
+        return Collections.unmodifiableList(words).iterator();
+    }
+
+    /**
+     * suggestCorrections
+     * Same as LexiconTrie.suggestCorrections, over this version
+     *
+     * @param target - the word to be corrected
+     * @param maxDistance - the number of changes from the target one can make
+     *
+     * @return Set<String> - The set of possible corrections
+     */
+    public Set<String> suggestCorrections(String target, int maxDistance) {
+        Set<String> corrections = new HashSet<String>();
+        LexiconTrie.buildCorrections(target, maxDistance, corrections, "", root);
+        return corrections;
+    }
+
+    /**
+     * matchRegex
+     * Same as LexiconTrie.matchRegex, over this version
+     *
+     * @param pattern - the regex
+     * @return Set<String> - the matches
+     */
+    public Set<String> matchRegex(String pattern) {
+        Set<String> matches = new HashSet<String>();
+        LexiconTrie.buildMatches(pattern, matches, "", root);
+        return matches;
+    }
+
+    /**
+     * parallelSuggestCorrections
+     * Same as suggestCorrections, split over the common fork-join pool. Safe to run on a snapshot
+     * while the handle it came from is being edited.
+     *
+     * @param target - the word to be corrected
+     * @param maxDistance - the number of changes from the target one can make
+     * @return Set<String> - The set of possible corrections
+     */
+    public Set<String> parallelSuggestCorrections(String target, int maxDistance) {
+        return ParallelLexiconSearch.suggestCorrections(root, target, maxDistance, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * parallelMatchRegex
+     * Same as matchRegex, split over the common fork-join pool
+     *
+     * @param pattern - the regex
+     * @return Set<String> - the matches
+     */
+    public Set<String> parallelMatchRegex(String pattern) {
+        return ParallelLexiconSearch.matchRegex(root, pattern, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * find
+     * Follows the path spelled by a string
+     *
+     * @param start - the node to start from
+     * @param str - the path to follow
+     * @return LexiconNode - the node at the end of the path, or null if the path isn't there
+     */
+    private static LexiconNode find(LexiconNode start, String str) {
+        LexiconNode current = start;
+        for (int i = 0; i < str.length() && current != null; i++) {
+            current = current.getChild(str.charAt(i));
+        }
+        return current;
+    }
+
+    /**
+     * insert
+     * Copies the path to a word and marks the end of it as a word. Nodes off the path are shared.
+     *
+     * @param start - the root of the version being edited
+     * @param str - the word to be added
+     * @param owned - nodes already copied in this batch, which can be changed in place (null outside a batch)
+     * @return LexiconNode - the root of the new version
+     */
+    private static LexiconNode insert(LexiconNode start, String str, Set<LexiconNode> owned) {
+        LexiconNode newRoot = editable(start, owned);
+        LexiconNode current = newRoot;
+        for (int i = 0; i < str.length(); i++) {
+            LexiconNode child = current.getChild(str.charAt(i));
+            LexiconNode copy;
+            if (child == null) {
+                copy = new LexiconNode(str.charAt(i));
+                if (owned != null) {
+                    owned.add(copy);
+                }
+            }
+            else {
+                copy = editable(child, owned);
+            }
+            if (copy != child) {
+                current.setChild(copy);
+            }
+            current = copy;
+        }
+        current.isWord(true);
+        return newRoot;
+    }
+
+    /**
+     * delete
+     * Copies the path to a word (which must be present) and unmarks the end of it.
+     * Like LexiconTrie, the unneeded prefix nodes are left in place.
+     *
+     * @param start - the root of the version being edited
+     * @param str - the word to be removed
+     * @param owned - nodes already copied in this batch (null outside a batch)
+     * @return LexiconNode - the root of the new version
+     */
+    private static LexiconNode delete(LexiconNode start, String str, Set<LexiconNode> owned) {
+        LexiconNode newRoot = editable(start, owned);
+        LexiconNode current = newRoot;
+        for (int i = 0; i < str.length(); i++) {
+            LexiconNode child = current.getChild(str.charAt(i));
+            LexiconNode copy = editable(child, owned);
+            if (copy != child) {
+                current.setChild(copy);
+            }
+            current = copy;
+        }
+        current.isWord(false);
+        return newRoot;
+    }
+
+    /**
+     * editable
+     * Gives a node that can be changed: the node itself if this batch already copied it, otherwise a copy
+     *
+     * @param node - the node about to be changed
+     * @param owned - nodes already copied in this batch (null outside a batch)
+     * @return LexiconNode - a node safe to change
+     */
+    private static LexiconNode editable(LexiconNode node, Set<LexiconNode> owned) {
+        if (owned != null && owned.contains(node)) {
+            return node;
+        }
+        LexiconNode copy = new LexiconNode(node);
+        if (owned != null) {
+            owned.add(copy);
+        }
+        return copy;
+    }
+
+    /**
+     * Transient
+     * A batch of edits on top of a version. Nodes copied during the batch are remembered and changed
+     * in place afterwards, so a run of words sharing a prefix copies that prefix only once.
+     * Not safe to share between threads. build() hands back the finished version; edits made after
+     * that start copying again, so the built version never changes.
+     */
+    public static class Transient {
+        private LexiconNode root;
+        private int totalWords;
+        private Set<LexiconNode> owned = Collections.newSetFromMap(new IdentityHashMap<LexiconNode, Boolean>());
+
+        private Transient(LexiconNode root, int totalWords) {
+            this.root = root;
+            this.totalWords = totalWords;
+        }
+
+        /**
+         * addWord
+         *
+         * @param str - the word to be added
+         * @return boolean - true if it is a new word, false if it was already there
+         */
+        public boolean addWord(String str) {
+            LexiconNode current = find(root, str);
+            if (current != null && current.isWord()) {
+                return false;
+            }
+            root = insert(root, str, owned);
+            totalWords++;
+            return true;
+        }
+
+        /**
+         * removeWord
+         *
+         * @param str - the word to be removed
+         * @return boolean - false if the word isn't there, true otherwise
+         */
+        public boolean removeWord(String str) {
+            LexiconNode current = find(root, str);
+            if (current == null || ! current.isWord()) {
+                return false;
+            }
+            root = delete(root, str, owned);
+            totalWords--;
+            return true;
+        }
+
+        /**
+         * addWordsFromFile
+         * Adds each word of the file (one per line) to the batch
+         *
+         * @param filename - the name of the file to be added
+         * @return int - the number of words in the file
+         */
+        public int addWordsFromFile(String filename) {
+            int result = 0;
+            String file = LexiconTrie.readFileAsString(filename);
+            String [] words = file.split("\n");
+            for (int i = 0; i < words.length; i ++) {
+                addWord(words[i].trim());
+                result ++;
+            }
+            return result;
+        }
+
+        /**
+         * numWords
+         *
+         * @return int - the number of words the batch currently holds
+         */
+        public int numWords() {
+            return totalWords;
+        }
+
+        /**
+         * build
+         * Ends the batch and freezes what it holds as a version
+         *
+         * @return PersistentLexiconTrie - the new version
+         */
+        public PersistentLexiconTrie build() {
+            owned.clear();
+            return new PersistentLexiconTrie(root, totalWords);
+        }
+    }
+}
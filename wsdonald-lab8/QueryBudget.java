@@ -0,0 +1,134 @@
+/**
+ * QueryBudget
+ *
+ * Limits on one streaming query (see LexiconTrie.matchRegex and suggestCorrections with a consumer):
+ * how many results to hand over, how many trie nodes to visit, and how long to run for.
+ * The time limit counts from when the budget is made. Another thread can stop the query
+ * at any point with cancel(); the walk checks for it at every node.
+ *
+ * A budget keeps count as the query runs, so use a new one for each query.
+ *
+ * @author WS Donaldson
+ */
+public class QueryBudget {
+
+    // how many node visits go by between looks at the clock
+    private static final int CLOCK_INTERVAL = 256;
+
+    private final int maxResults;
+    private final long maxNodeVisits;
+    private final long maxNanos;
+    private final long start = System.nanoTime();
+    private volatile boolean cancelled = false;
+    private boolean timedOut = false;
+    private int results;
+    private long nodeVisits;
+
+    /**
+     * Constructor
+     *
+     * @param maxResults - the most results to hand over
+     * @param maxMillis - how long the query may run for, counting from now
+     * @param maxNodeVisits - the most trie nodes the query may visit
+     */
+    public QueryBudget(int maxResults, long maxMillis, long maxNodeVisits) {
+        this.maxResults = maxResults;
+        this.maxNodeVisits = maxNodeVisits;
+        this.maxNanos = maxMillis >= Long.MAX_VALUE / 1000000 ? Long.MAX_VALUE : maxMillis * 1000000;
+    }
+
+    /**
+     * unlimited
+     *
+     * @return QueryBudget - a budget which only stops when cancelled
+     */
+    public static QueryBudget unlimited() {
+        return new QueryBudget(Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * maxResults
+     *
+     * @param maxResults - the most results to hand over
+     * @return QueryBudget - a budget with no other limit
+     */
+    public static QueryBudget maxResults(int maxResults) {
+        return new QueryBudget(maxResults, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * cancel
+     * Asks the query to stop. Safe to call from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * isCancelled
+     *
+     * @return boolean - true if cancel() has been called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * isTimedOut
+     *
+     * @return boolean - true if the query was stopped for running out of time
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * results
+     *
+     * @return int - the number of results handed over so far
+     */
+    public int results() {
+        return results;
+    }
+
+    /**
+     * nodeVisits
+     *
+     * @return long - the number of trie nodes visited so far
+     */
+    public long nodeVisits() {
+        return nodeVisits;
+    }
+
+    /**
+     * visit
+     * Called by the walk on entering a node
+     *
+     * @return boolean - true if the walk may carry on, false if it has to stop
+     */
+    boolean visit() {
+        if (cancelled || timedOut || results >= maxResults || nodeVisits >= maxNodeVisits) {
+            return false;
+        }
+        nodeVisits++;
+        if (nodeVisits % CLOCK_INTERVAL == 0 && System.nanoTime() - start > maxNanos) {
+            timedOut = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * deliver
+     * Called by the walk for each result it finds
+     *
+     * @return boolean - true if the result may be handed over, false if the result limit was already reached
+     */
+    boolean deliver() {
+        if (results >= maxResults) {
+            return false;
+        }
+        results++;
+        return true;
+    }
+}
@@ -0,0 +1,80 @@
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * RecordingLexicon
+ *
+ * Wraps another lexicon, passing every call through and noting each one in a Workload,
+ * so real use can be saved and played back later with WorkloadReplayer.
+ * addWordsFromFile and numWords are passed through but not noted: a replay starts from a
+ * dictionary file of its own, which stands in for the loads.
+ *
+ * @author WS Donaldson
+ */
+public class RecordingLexicon implements Lexicon {
+    private final Lexicon lex;
+    private final Workload workload;
+
+    /**
+     * Constructor
+     *
+     * @param lex - the lexicon that does the work
+     * @param workload - where the calls are noted
+     */
+    public RecordingLexicon(Lexicon lex, Workload workload) {
+        this.lex = lex;
+        this.workload = workload;
+    }
+
+    /**
+     * workload
+     *
+     * @return Workload - the calls noted so far
+     */
+    public Workload workload() {
+        return workload;
+    }
+
+    public boolean addWord(String word) {
+        workload.add(new Workload.Op(Workload.Type.ADD, word, 0));
+        return lex.addWord(word);
+    }
+
+    public int addWordsFromFile(String filename) {
+        return lex.addWordsFromFile(filename);
+    }
+
+    public boolean removeWord(String word) {
+        workload.add(new Workload.Op(Workload.Type.REMOVE, word, 0));
+        return lex.removeWord(word);
+    }
+
+    public int numWords() {
+        return lex.numWords();
+    }
+
+    public boolean containsWord(String word) {
+        workload.add(new Workload.Op(Workload.Type.CONTAINS_WORD, word, 0));
+        return lex.containsWord(word);
+    }
+
+    public boolean containsPrefix(String prefix) {
+        workload.add(new Workload.Op(Workload.Type.CONTAINS_PREFIX, prefix, 0));
+        return lex.containsPrefix(prefix);
+    }
+
+    public Iterator<String> iterator() {
+        workload.add(new Workload.Op(Workload.Type.ITERATE, "", 0));
+        return lex.iterator();
+    }
+
+    public Set<String> suggestCorrections(String target, int maxDistance) {
+        workload.add(new Workload.Op(Workload.Type.SUGGEST, target, maxDistance));
+        return lex.suggestCorrections(target, maxDistance);
+    }
+
+    public Set<String> matchRegex(String pattern) {
+        workload.add(new Workload.Op(Workload.Type.MATCH, pattern, 0));
+        return lex.matchRegex(pattern);
+    }
+}
@@ -0,0 +1,372 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * ShardedLexicon
+ *
+ * A lexicon split over a number of independent LexiconTries (shards). Each word lives in exactly one shard,
+ * picked either by a hash of the word or by which range its first letter falls in.
+ * Adding, removing and looking up a word only touch that word's shard. suggestCorrections, matchRegex and
+ * the iterator are sent to every shard that could hold an answer, run in parallel, and the answers gathered;
+ * the iterator merges the shards' alphabetical lists into one.
+ *
+ * A shard can be loaded or rebuilt from a file on its own without touching the others.
+ * Like LexiconTrie, this is not safe to change from one thread while another is using it.
+ *
+ * @author WS Donaldson
+ */
+public class ShardedLexicon implements Lexicon {
+    private final LexiconTrie[] shards;
+
+    // first letters where each shard after the first starts, or null when routing by hash
+    private final char[] boundaries;
+
+    /**
+     * Constructor for routing by hash
+     *
+     * @param numShards - the number of shards to spread the words over
+     */
+    public ShardedLexicon(int numShards) {
+        if (numShards < 1) {
+            throw new IllegalArgumentException("numShards must be at least 1");
+        }
+        this.shards = new LexiconTrie[numShards];
+        this.boundaries = null;
+        for (int i = 0; i < numShards; i++) {
+            shards[i] = new LexiconTrie();
+        }
+    }
+
+    /**
+     * Constructor for routing by prefix range.
+     * With boundaries "hp", shard 0 holds words before 'h', shard 1 words from 'h' to before 'p',
+     * and shard 2 words from 'p' on.
+     *
+     * @param boundaries - the first letters where each shard after the first starts, in increasing order
+     */
+    public ShardedLexicon(String boundaries) {
+        this.boundaries = boundaries.toCharArray();
+        for (int i = 1; i < this.boundaries.length; i++) {
+            if (this.boundaries[i] <= this.boundaries[i - 1]) {
+                throw new IllegalArgumentException("boundaries must be in increasing order");
+            }
+        }
+        this.shards = new LexiconTrie[this.boundaries.length + 1];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new LexiconTrie();
+        }
+    }
+
+    /**
+     * numShards
+     *
+     * @return int - the number of shards
+     */
+    public int numShards() {
+        return shards.length;
+    }
+
+    /**
+     * shard
+     *
+     * @param index - which shard
+     * @return LexiconTrie - the shard itself
+     */
+    public LexiconTrie shard(int index) {
+        return shards[index];
+    }
+
+    /**
+     * shardFor
+     *
+     * @param word - a word
+     * @return int - the index of the shard the word belongs in
+     */
+    public int shardFor(String word) {
+        if (boundaries == null) {
+            return Math.floorMod(word.hashCode(), shards.length);
+        }
+        if (word.length() == 0) {
+            return 0;
+        }
+        int found = Arrays.binarySearch(boundaries, word.charAt(0));
+        return found >= 0 ? found + 1 : -found - 1;
+    }
+
+    /**
+     * addWord
+     *
+     * @param str - string which is to be added
+     * @return boolean, returns true if it is a new word for the Lexicon, false if it is already there
+     */
+    public boolean addWord(String str) {
+        return shards[shardFor(str)].addWord(str);
+    }
+
+    /**
+     * addWordsFromFile
+     * Reads the file once and sends each word to its shard
+     *
+     * @param filename - the name of the file to be added
+     * @return int - the number of words in the file
+     */
+    public int addWordsFromFile(String filename) {
+        return addFromFile(filename, -1, shards);
+    }
+
+    /**
+     * loadShard
+     * Adds just the words of a file that belong in the given shard. The other shards aren't touched.
+     *
+     * @param index - which shard
+     * @param filename - the name of the file to read
+     * @return int - the number of words of the file that belong in the shard
+     */
+    public int loadShard(int index, String filename) {
+        return addFromFile(filename, index, shards);
+    }
+
+    /**
+     * rebuildShard
+     * Builds a new trie for one shard from a file, then swaps it in for the old one.
+     * If the file can't be read the old shard is kept. The other shards carry on as they are.
+     *
+     * @param index - which shard
+     * @param filename - the name of the file to read
+     * @return int - the number of words of the file that belong in the shard, or -1 if the file could not be read
+     */
+    public int rebuildShard(int index, String filename) {
+        LexiconTrie[] fresh = new LexiconTrie[shards.length];
+        fresh[index] = new LexiconTrie();
+        int result = addFromFile(filename, index, fresh);
+        if (result != -1) {
+            shards[index] = fresh[index];
+        }
+        return result;
+    }
+
+    /**
+     * removeWord
+     *
+     * @param str - the word to be removed
+     * @return boolean - false if the word isn't there, true otherwise.
+     */
+    public boolean removeWord(String str) {
+        return shards[shardFor(str)].removeWord(str);
+    }
+
+    /**
+     * numWords
+     * Adds up the words in all the shards. Constant time for a fixed number of shards.
+     *
+     * @return int - the total number of words
+     */
+    public int numWords() {
+        int total = 0;
+        for (LexiconTrie shard : shards) {
+            total += shard.numWords();
+        }
+        return total;
+    }
+
+    /**
+     * containsWord
+     *
+     * @param str - the word to be checked
+     * @return boolean - true if it is there, false otherwise.
+     */
+    public boolean containsWord(String str) {
+        return shards[shardFor(str)].containsWord(str);
+    }
+
+    /**
+     * containsPrefix
+     * With prefix ranges only the prefix's own shard is checked; with hashing any shard may hold it.
+     *
+     * @param prefix - the prefix to be checked
+     * @return boolean - true if it is there, false otherwise.
+     */
+    public boolean containsPrefix(String prefix) {
+        if (boundaries != null && prefix.length() > 0) {
+            return shards[shardFor(prefix)].containsPrefix(prefix);
+        }
+        for (LexiconTrie shard : shards) {
+            if (shard.containsPrefix(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Iterator
+     * Gets every shard's words in parallel, then merges them into one alphabetical order
+     *
+     * @return Iterator<String> is the iterator which is returned
+     */
+    public Iterator<String> iterator() {
+        List<Iterator<String>> parts = scatter(allShards(), LexiconTrie::iterator);
+        return new MergingIterator(parts);
+    }
+
+    /**
+     * suggestCorrections
+     * Asks the shards that could hold a correction, in parallel. With maxDistance 0 the only possible
+     * correction is the target itself, so that is just the target's shard.
+     *
+     * @param target - the word to be corrected
+     * @param maxDistance - the number of changes from the target one can make
+     *
+     * @return Set<String> - The set of possible corrections
+     */
+    public Set<String> suggestCorrections(String target, int maxDistance) {
+        List<Integer> relevant = maxDistance <= 0 ? Arrays.asList(shardFor(target)) : allShards();
+        Set<String> corrections = new HashSet<String>();
+        for (Set<String> part : scatter(relevant, shard -> shard.suggestCorrections(target, maxDistance))) {
+            corrections.addAll(part);
+        }
+        return corrections;
+    }
+
+    /**
+     * matchRegex
+     * Asks the shards that could hold a match, in parallel. With prefix ranges and a pattern starting
+     * with a letter, that is just the shard for that letter.
+     *
+     * @param pattern - the regex
+     * @return Set<String> - the matches
+     */
+    public Set<String> matchRegex(String pattern) {
+        boolean literal = pattern.length() > 0 && "*?_".indexOf(pattern.charAt(0)) < 0;
+        List<Integer> relevant = literal ? singleShard(pattern) : allShards();
+        Set<String> matches = new HashSet<String>();
+        for (Set<String> part : scatter(relevant, shard -> shard.matchRegex(pattern))) {
+            matches.addAll(part);
+        }
+        return matches;
+    }
+
+    /**
+     * scatter
+     * Runs a query on the given shards in parallel and waits for all the answers
+     *
+     * @param indexes - which shards to ask
+     * @param query - what to ask each shard
+     * @return List<T> - the answers, in the same order as the shards
+     */
+    private <T> List<T> scatter(List<Integer> indexes, Function<LexiconTrie, T> query) {
+        List<CompletableFuture<T>> futures = new ArrayList<CompletableFuture<T>>();
+        for (int index : indexes) {
+            LexiconTrie shard = shards[index];
+            futures.add(CompletableFuture.supplyAsync(() -> query.apply(shard)));
+        }
+        List<T> answers = new ArrayList<T>();
+        for (CompletableFuture<T> future : futures) {
+            answers.add(future.join());
+        }
+        return answers;
+    }
+
+    private List<Integer> allShards() {
+        List<Integer> all = new ArrayList<Integer>();
+        for (int i = 0; i < shards.length; i++) {
+            all.add(i);
+        }
+        return all;
+    }
+
+    /**
+     * singleShard
+     *
+     * @param str - a word or pattern starting with a letter
+     * @return List<Integer> - just the shard for str if routing by prefix range, otherwise all of them
+     */
+    private List<Integer> singleShard(String str) {
+        if (boundaries == null) {
+            return allShards();
+        }
+        List<Integer> one = new ArrayList<Integer>();
+        one.add(shardFor(str));
+        return one;
+    }
+
+    /**
+     * addFromFile
+     *
+     * @param filename - the name of the file to read
+     * @param only - the one shard to add words to, or -1 for every shard
+     * @param targets - the tries to add to, by shard index
+     * @return int - the number of words read that were for the shards being loaded
+     */
+    private int addFromFile(String filename, int only, LexiconTrie[] targets) {
+        int result = 0;
+        String file = LexiconTrie.readFileAsString(filename);
+        if (file == null) {
+            return -1;
+        }
+        String [] words = file.split("\n");
+        for (int i = 0; i < words.length; i ++) {
+            String current = words[i].trim();
+            int index = shardFor(current);
+            if (only == -1 || only == index) {
+                targets[index].addWord(current);
+                result ++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * MergingIterator
+     * A k-way merge of iterators that each give words in alphabetical order
+     */
+    private static class MergingIterator implements Iterator<String> {
+        // each entry is the next word of one iterator, along with that iterator
+        private final PriorityQueue<Head> heads = new PriorityQueue<Head>();
+
+        MergingIterator(List<Iterator<String>> parts) {
+            for (Iterator<String> part : parts) {
+                if (part.hasNext()) {
+                    heads.add(new Head(part.next(), part));
+                }
+            }
+        }
+
+        public boolean hasNext() {
+            return ! heads.isEmpty();
+        }
+
+        public String next() {
+            Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            if (head.rest.hasNext()) {
+                heads.add(new Head(head.rest.next(), head.rest));
+            }
+            return head.word;
+        }
+
+        private static class Head implements Comparable<Head> {
+            final String word;
+            final Iterator<String> rest;
+
+            Head(String word, Iterator<String> rest) {
+                this.word = word;
+                this.rest = rest;
+            }
+
+            public int compareTo(Head other) {
+                return word.compareTo(other.word);
+            }
+        }
+    }
+}
@@ -1,3 +1,12 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
 
@@ -16,18 +25,33 @@ public class TestLexicon {
     // whether we're finished executing commands on the lexicon
     private static boolean done = false;
 
+    // where all command output goes
+    private static PrintWriter out = new PrintWriter(System.out, true);
+
+    // whether output is tab-separated records rather than text for people
+    private static boolean tsv = false;
+
+    // per-command [count, total nanos, max nanos] in batch mode, null otherwise
+    private static Map<String, long[]> timings = null;
+
     /**
      * Runs a command loop allowing the user to enter commands until finished.
+     * Run with -batch to read commands without prompting instead (see runBatch).
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("-batch")) {
+            runBatch(args);
+            return;
+        }
         Scanner scan = new Scanner(System.in);
 
-        System.out.println("Welcome to the Lexicon Tester!\nEnter <f scrabble.txt> to import and search the entire scrabble dictionary.\nPress <return> for list of commands.");
+        out.println("Welcome to the Lexicon Tester!\nEnter <f scrabble.txt> to import and search the entire scrabble dictionary.\nPress <return> for list of commands.");
         while (!done) {
-            System.out.print("\nEnter command: ");
+            out.print("\nEnter command: ");
+            out.flush();
             String[] tokens = scan.nextLine().split(" ");
             if (!invokeCmd(tokens)) {
-                System.out.println("Unrecognized command \"" + tokens[0]
+                out.println("Unrecognized command \"" + tokens[0]
                     + "\".  Hit <return> for list of commands.");
             }
         }
@@ -35,6 +59,78 @@ public class TestLexicon {
         scan.close();
     }
 
+    /**
+     * Runs commands back to back with no prompts or welcome text, for scripts.
+     * Usage: java TestLexicon -batch [-tsv] [commandfile]
+     * Commands are read from commandfile, or from standard input if none is given,
+     * one per line; blank lines are skipped and the run ends at quit or end of input.
+     * All output goes through one large buffer that is only flushed at the end.
+     * With -tsv every result is a tab-separated record instead of text for people.
+     * A command that throws is reported as an error and the run carries on.
+     * Per-command timings are written after the last command.
+     */
+    private static void runBatch(String[] args) throws IOException {
+        String filename = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-tsv")) {
+                tsv = true;
+            } else {
+                filename = args[i];
+            }
+        }
+        BufferedReader in = new BufferedReader(filename == null
+            ? new InputStreamReader(System.in) : new FileReader(filename), 1 << 16);
+        out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16), false);
+        timings = new LinkedHashMap<String, long[]>();
+
+        try {
+            String line;
+            while (!done && (line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] tokens = line.split(" +");
+                try {
+                    if (!invokeCmd(tokens)) {
+                        out.println(tsv ? "error\tunrecognized\t" + tokens[0]
+                            : "Unrecognized command \"" + tokens[0] + "\".");
+                    }
+                } catch (RuntimeException e) {
+                    // report the failure and carry on with the next command
+                    out.println(tsv ? "error\tfailed\t" + line + "\t" + e
+                        : "Command \"" + line + "\" failed: " + e);
+                }
+            }
+            printTimings();
+        } finally {
+            in.close();
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes how many times each command ran and how long it took, in microseconds.
+     */
+    private static void printTimings() {
+        if (!tsv) {
+            out.println();
+            out.println("Command timings (microseconds)");
+            out.println("command      count       total         avg         max");
+        }
+        for (Map.Entry<String, long[]> entry : timings.entrySet()) {
+            long[] t = entry.getValue();
+            long total = t[1] / 1000;
+            long max = t[2] / 1000;
+            if (tsv) {
+                out.println("timing\t" + entry.getKey() + "\t" + t[0] + "\t" + total + "\t" + max);
+            } else {
+                out.println(String.format("%-8s %9d %11d %11d %11d",
+                    entry.getKey(), t[0], total, total / t[0], max));
+            }
+        }
+    }
+
     /*
      * All code below this point has to do with providing the various commands of
      * the interface. There are a bunch of syntactic features used here that we
@@ -119,21 +215,24 @@ public class TestLexicon {
                 @Override
                 public void performOp(String[] commandTokens) {
                     done = true;
-                    System.out.println("Bye!");
+                    if (timings == null) {
+                        out.println("Bye!");
+                    }
                 }
             } };
 
     /**
      * Looks for a matching command in the list of available options and if found,
-     * executes the operation for that command.
+     * executes the operation for that command. Returns false only if no command
+     * matched; a command given the wrong number of arguments reports that itself.
      */
     private static boolean invokeCmd(String[] tokens) {
         String userCmd = tokens[0];
         if (userCmd.equals("")) {
-            System.out.print("Command listing: ");
-            System.out.println("[abbrv] [cmd] [args] [description]");
+            out.print("Command listing: ");
+            out.println("[abbrv] [cmd] [args] [description]");
             for (Command cmd : COMMANDS) {
-                System.out.println(cmd);
+                out.println(cmd);
             }
             return true;
         }
@@ -141,10 +240,24 @@ public class TestLexicon {
         for (Command cmd : COMMANDS) {
             if (userCmd.startsWith(cmd.abbrev) || userCmd.equals(cmd.name)) {
                 if (cmd.numArgs != tokens.length - 1) {
-                    System.out.println("The " + cmd.name + " command expects "
-                        + cmd.numArgs + " arguments.");
+                    out.println(tsv ? "error\targuments\t" + cmd.name + "\t" + cmd.numArgs
+                        : "The " + cmd.name + " command expects " + cmd.numArgs + " arguments.");
+                    return true; // recognized, and the argument error is already reported
+                } else if (timings == null) {
+                    cmd.performOp(tokens);
+                    return true;
                 } else {
+                    long start = System.nanoTime();
                     cmd.performOp(tokens);
+                    long elapsed = System.nanoTime() - start;
+                    long[] t = timings.get(cmd.name);
+                    if (t == null) {
+                        t = new long[3];
+                        timings.put(cmd.name, t);
+                    }
+                    t[0]++;
+                    t[1] += elapsed;
+                    t[2] = Math.max(t[2], elapsed);
                     return true;
                 }
             }
@@ -157,11 +270,14 @@ public class TestLexicon {
      */
     private static void testAdd(String[] commandTokens) {
         String word = commandTokens[1].toLowerCase();
-        if (lex.addWord(word)) {
-            System.out.println("\"" + word + "\" added to lexicon.");
+        boolean added = lex.addWord(word);
+        if (tsv) {
+            out.println("add\t" + word + "\t" + added + "\t" + lex.numWords());
+        } else if (added) {
+            out.println("\"" + word + "\" added to lexicon.");
         } else {
-            System.out.println("\"" + word + "\" already was in lexicon.");
-            System.out.println("Lexicon now contains " + lex.numWords() + " words.");
+            out.println("\"" + word + "\" already was in lexicon.");
+            out.println("Lexicon now contains " + lex.numWords() + " words.");
         }
     }
 
@@ -170,12 +286,17 @@ public class TestLexicon {
      */
     private static void testRemove(String[] commandTokens) {
         String word = commandTokens[1].toLowerCase();
-        if (lex.removeWord(word)) {
-            System.out.println("\"" + word + "\" removed from lexicon.");
+        boolean removed = lex.removeWord(word);
+        if (tsv) {
+            out.println("remove\t" + word + "\t" + removed + "\t" + lex.numWords());
+            return;
+        }
+        if (removed) {
+            out.println("\"" + word + "\" removed from lexicon.");
         } else {
-            System.out.println("\"" + word + "\" wasn't in lexicon.");
+            out.println("\"" + word + "\" wasn't in lexicon.");
         }
-        System.out.println("Lexicon now contains " + lex.numWords() + " words.");
+        out.println("Lexicon now contains " + lex.numWords() + " words.");
     }
 
     /**
@@ -183,11 +304,15 @@ public class TestLexicon {
      */
     private static void testContains(String[] commandTokens) {
         String str = commandTokens[1].toLowerCase();
-        boolean contains = lex.containsPrefix(str);
-        System.out.println("Prefix \"" + str + "\" " + (contains ? "IS" : "is NOT")
+        boolean prefix = lex.containsPrefix(str);
+        boolean word = lex.containsWord(str);
+        if (tsv) {
+            out.println("contains\t" + str + "\t" + prefix + "\t" + word);
+            return;
+        }
+        out.println("Prefix \"" + str + "\" " + (prefix ? "IS" : "is NOT")
             + " contained in lexicon.");
-        contains = lex.containsWord(str);
-        System.out.println("Word \"" + str + "\" " + (contains ? "IS" : "is NOT")
+        out.println("Word \"" + str + "\" " + (word ? "IS" : "is NOT")
             + " contained in lexicon.");
     }
 
@@ -197,11 +322,13 @@ public class TestLexicon {
     private static void testReadFile(String[] commandTokens) {
         String filename = commandTokens[1];
         int count = lex.addWordsFromFile(filename);
-        if (count == -1) {
-            System.out.println("Failed to read file \"" + filename + "\".");
+        if (tsv) {
+            out.println("file\t" + filename + "\t" + count + "\t" + lex.numWords());
+        } else if (count == -1) {
+            out.println("Failed to read file \"" + filename + "\".");
         } else {
-            System.out.println("Read " + count + " words from file \"" + filename + "\".");
-            System.out.println("Lexicon now contains " + lex.numWords() + " words.");
+            out.println("Read " + count + " words from file \"" + filename + "\".");
+            out.println("Lexicon now contains " + lex.numWords() + " words.");
         }
     }
 
@@ -210,11 +337,15 @@ public class TestLexicon {
      * functionality.
      */
     private static void testIterator(String[] unused) {
-        System.out.println(
-            "Lexicon contains " + lex.numWords() + " words.  Here they are:");
-        System.out.println("--------------------------------------------");
+        if (tsv) {
+            out.println("print\t" + lex.numWords());
+        } else {
+            out.println(
+                "Lexicon contains " + lex.numWords() + " words.  Here they are:");
+            out.println("--------------------------------------------");
+        }
         for (String word : lex) {
-            System.out.println(word);
+            out.println(tsv ? "word\t" + word : word);
         }
     }
 
@@ -227,11 +358,16 @@ public class TestLexicon {
         String distStr = commandTokens[2];
         int maxDistance = Integer.parseInt(distStr);
 
-        System.out.println("Words that are within distance " + maxDistance
-            + " of \"" + target + "\"");
-        System.out.println("--------------------------------------------");
         Set<String> corrections = lex.suggestCorrections(target, maxDistance);
-        System.out.println(corrections);
+        if (tsv) {
+            out.println("suggest\t" + target + "\t" + maxDistance + "\t" + corrections.size());
+            printWords(corrections);
+            return;
+        }
+        out.println("Words that are within distance " + maxDistance
+            + " of \"" + target + "\"");
+        out.println("--------------------------------------------");
+        out.println(corrections);
     }
 
     /**
@@ -240,10 +376,24 @@ public class TestLexicon {
      */
     private static void testRegex(String[] commandTokens) {
         String pattern = commandTokens[1].toLowerCase();
-        System.out.println("Words that match pattern " + pattern);
-        System.out.println("-----------------------------------");
         Set<String> matches = lex.matchRegex(pattern);
-        System.out.println(matches);
+        if (tsv) {
+            out.println("match\t" + pattern + "\t" + matches.size());
+            printWords(matches);
+            return;
+        }
+        out.println("Words that match pattern " + pattern);
+        out.println("-----------------------------------");
+        out.println(matches);
+    }
+
+    /**
+     * Prints one word record per line.
+     */
+    private static void printWords(Set<String> words) {
+        for (String word : words) {
+            out.println("word\t" + word);
+        }
     }
 
 }
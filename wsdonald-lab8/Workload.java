@@ -0,0 +1,250 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Workload
+ *
+ * A list of lexicon operations in the order they happened, which can be saved to and loaded from a compact
+ * binary log. Workloads come from RecordingLexicon (capturing real use) or WorkloadGenerator (made up),
+ * and are played back by WorkloadReplayer.
+ *
+ * Log format: the int MAGIC, a version byte and the number of operations, then for each operation a type byte,
+ * its word or pattern (as DataOutput.writeUTF) unless it is ITERATE, and for SUGGEST the distance as an int.
+ *
+ * @author WS Donaldson
+ */
+public class Workload {
+
+    // "LXWL" at the start of every log
+    private static final int MAGIC = 0x4C58574C;
+    private static final byte VERSION = 2;
+
+    /**
+     * The kinds of operation, in the order of their type bytes in a log
+     */
+    public enum Type {
+        ADD, REMOVE, CONTAINS_WORD, CONTAINS_PREFIX, SUGGEST, MATCH, ITERATE;
+
+        /**
+         * mutates
+         *
+         * @return boolean - true if this kind of operation changes the lexicon
+         */
+        public boolean mutates() {
+            return this == ADD || this == REMOVE;
+        }
+
+        /**
+         * isPointOp
+         *
+         * @return boolean - true if the result only depends on earlier operations on the same word
+         */
+        public boolean isPointOp() {
+            return this == ADD || this == REMOVE || this == CONTAINS_WORD;
+        }
+    }
+
+    /**
+     * Op
+     * One operation: its type, the word, prefix, target or pattern it was called with, and the distance for SUGGEST
+     */
+    public static class Op {
+        public final Type type;
+        public final String arg;
+        public final int distance;
+
+        public Op(Type type, String arg, int distance) {
+            this.type = type;
+            this.arg = type == Type.ITERATE ? "" : arg;
+            this.distance = distance;
+        }
+
+        /**
+         * apply
+         * Runs the operation on a lexicon and boils its result down to a number, so results from
+         * different implementations can be compared cheaply. Sets are digested without regard to order,
+         * the iterator in order.
+         *
+         * @param lex - the lexicon to run on
+         * @return long - the digest of the result
+         */
+        public long apply(Lexicon lex) {
+            switch (type) {
+                case ADD:
+                    return lex.addWord(arg) ? 1 : 0;
+                case REMOVE:
+                    return lex.removeWord(arg) ? 1 : 0;
+                case CONTAINS_WORD:
+                    return lex.containsWord(arg) ? 1 : 0;
+                case CONTAINS_PREFIX:
+                    return lex.containsPrefix(arg) ? 1 : 0;
+                case SUGGEST:
+                    return digest(lex.suggestCorrections(arg, distance));
+                case MATCH:
+                    return digest(lex.matchRegex(arg));
+                default:
+                    long h = 0;
+                    for (String word : lex) {
+                        h = h * 31 + word.hashCode();
+                    }
+                    return h;
+            }
+        }
+
+        public String toString() {
+            if (type == Type.ITERATE) {
+                return type.toString();
+            }
+            return type + " " + arg + (type == Type.SUGGEST ? " " + distance : "");
+        }
+
+        private static long digest(Set<String> words) {
+            long h = words.size();
+            for (String word : words) {
+                h += word.hashCode() * 0x9E3779B97F4A7C15L;
+            }
+            return h;
+        }
+    }
+
+    private final List<Op> ops = new ArrayList<Op>();
+
+    /**
+     * add
+     * Adds an operation to the end. Safe to call from several threads.
+     *
+     * @param op - the operation
+     */
+    public synchronized void add(Op op) {
+        ops.add(op);
+    }
+
+    /**
+     * ops
+     *
+     * @return List<Op> - the operations so far, in order
+     */
+    public synchronized List<Op> ops() {
+        return Collections.unmodifiableList(new ArrayList<Op>(ops));
+    }
+
+    /**
+     * size
+     *
+     * @return int - the number of operations
+     */
+    public synchronized int size() {
+        return ops.size();
+    }
+
+    /**
+     * hasMutations
+     *
+     * @return boolean - true if any operation adds or removes a word
+     */
+    public synchronized boolean hasMutations() {
+        for (Op op : ops) {
+            if (op.type.mutates()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * write
+     * Saves the operations to a binary log. Every word and pattern is checked first, so an operation that
+     * can't be written fails before the file is touched rather than leaving half a log behind.
+     *
+     * @param filename - the file to write
+     */
+    public synchronized void write(String filename) throws IOException {
+        for (int i = 0; i < ops.size(); i++) {
+            if (utfLength(ops.get(i).arg) > 65535) {
+                throw new UTFDataFormatException("Operation " + i + " is over the 65535 byte limit of a log entry");
+            }
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(ops.size());
+            for (Op op : ops) {
+                out.writeByte(op.type.ordinal());
+                if (op.type != Type.ITERATE) {
+                    out.writeUTF(op.arg);
+                }
+                if (op.type == Type.SUGGEST) {
+                    out.writeInt(op.distance);
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * utfLength
+     *
+     * @param str - a word or pattern
+     * @return long - the number of bytes DataOutput.writeUTF would write for it, not counting the length
+     */
+    private static long utfLength(String str) {
+        long length = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                length += 1;
+            }
+            else if (c <= 0x07FF) {
+                length += 2;
+            }
+            else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * read
+     * Loads a binary log written by write
+     *
+     * @param filename - the file to read
+     * @return Workload - the operations in the log
+     */
+    public static Workload read(String filename) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename), 1 << 16));
+        try {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException(filename + " is not a workload log");
+            }
+            int count = in.readInt();
+            Type[] types = Type.values();
+            Workload workload = new Workload();
+            for (int i = 0; i < count; i++) {
+                int code = in.readByte();
+                if (code < 0 || code >= types.length) {
+                    throw new IOException("Bad operation type " + code + " in " + filename);
+                }
+                Type type = types[code];
+                String arg = type == Type.ITERATE ? "" : in.readUTF();
+                int distance = type == Type.SUGGEST ? in.readInt() : 0;
+                workload.ops.add(new Op(type, arg, distance));
+            }
+            return workload;
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * WorkloadGenerator
+ *
+ * Makes up workloads from the words of a dictionary file. Each operation works on either a word from the
+ * dictionary (a hit) or a word made by changing one letter of one until it isn't in the dictionary (a miss),
+ * in whatever proportion is asked for. Patterns for MATCH are words with each letter turned into a
+ * wildcard ('_', '?' or '*') with a given probability. The same seed always gives the same workload.
+ *
+ * Usage: java WorkloadGenerator <dictionary> <log> <numOps> [seed] [hitRatio] [wildcardDensity]
+ *
+ * @author WS Donaldson
+ */
+public class WorkloadGenerator {
+
+    // how often each type is picked by default, by Workload.Type order:
+    // add, remove, contains word, contains prefix, suggest, match, iterate
+    public static final int[] DEFAULT_MIX = { 5, 5, 50, 20, 10, 10, 0 };
+
+    private static final String WILDCARDS = "_?*";
+
+    private final String[] words;
+    private final Set<String> dictionary = new HashSet<String>();
+    private final Random random;
+
+    /**
+     * Constructor
+     *
+     * @param dictionaryFile - the file of words (one per line) to build operations from
+     * @param seed - the seed for the random choices
+     */
+    public WorkloadGenerator(String dictionaryFile, long seed) throws IOException {
+        String file = LexiconTrie.readFileAsString(dictionaryFile);
+        if (file == null) {
+            throw new IOException("Could not read " + dictionaryFile);
+        }
+        String[] lines = file.split("\n");
+        int count = 0;
+        for (int i = 0; i < lines.length; i++) {
+            String word = lines[i].trim();
+            if (word.length() > 0 && dictionary.add(word)) {
+                lines[count++] = word;
+            }
+        }
+        if (count == 0) {
+            throw new IOException(dictionaryFile + " has no words");
+        }
+        this.words = new String[count];
+        System.arraycopy(lines, 0, words, 0, count);
+        this.random = new Random(seed);
+    }
+
+    /**
+     * generate
+     *
+     * @param numOps - the number of operations to make
+     * @param hitRatio - the fraction of operations on dictionary words, from 0 to 1
+     * @param wildcardDensity - the chance of each letter of a MATCH pattern being a wildcard, from 0 to 1
+     * @param mix - how often to pick each type, by Workload.Type order (see DEFAULT_MIX)
+     * @return Workload - the operations
+     */
+    public Workload generate(int numOps, double hitRatio, double wildcardDensity, int[] mix) {
+        Workload.Type[] types = Workload.Type.values();
+        if (mix.length != types.length) {
+            throw new IllegalArgumentException("mix needs one weight per operation type");
+        }
+        int totalWeight = 0;
+        for (int weight : mix) {
+            totalWeight += weight;
+        }
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("mix weights must add up to more than 0");
+        }
+
+        Workload workload = new Workload();
+        for (int i = 0; i < numOps; i++) {
+            int pick = random.nextInt(totalWeight);
+            int t = 0;
+            while (pick >= mix[t]) {
+                pick -= mix[t];
+                t++;
+            }
+            String word = random.nextDouble() < hitRatio ? hit() : miss();
+            switch (types[t]) {
+                case CONTAINS_PREFIX:
+                    workload.add(new Workload.Op(types[t], word.substring(0, 1 + random.nextInt(word.length())), 0));
+                    break;
+                case SUGGEST:
+                    workload.add(new Workload.Op(types[t], word, 1 + random.nextInt(2)));
+                    break;
+                case MATCH:
+                    workload.add(new Workload.Op(types[t], wildcards(word, wildcardDensity), 0));
+                    break;
+                default:
+                    workload.add(new Workload.Op(types[t], word, 0));
+            }
+        }
+        return workload;
+    }
+
+    /**
+     * hit
+     *
+     * @return String - a random word from the dictionary
+     */
+    private String hit() {
+        return words[random.nextInt(words.length)];
+    }
+
+    /**
+     * miss
+     * Changes letters of a dictionary word until it isn't in the dictionary, adding a letter if that takes too long
+     *
+     * @return String - a word that isn't in the dictionary
+     */
+    private String miss() {
+        char[] letters = hit().toCharArray();
+        char base = Character.isUpperCase(letters[0]) ? 'A' : 'a';
+        for (int attempt = 0; attempt < 10; attempt++) {
+            letters[random.nextInt(letters.length)] = (char) (base + random.nextInt(26));
+            String word = new String(letters);
+            if (! dictionary.contains(word)) {
+                return word;
+            }
+        }
+        String word = new String(letters);
+        while (dictionary.contains(word)) {
+            word += (char) (base + random.nextInt(26));
+        }
+        return word;
+    }
+
+    /**
+     * wildcards
+     *
+     * @param word - the word to base the pattern on
+     * @param density - the chance of each letter becoming a wildcard
+     * @return String - the pattern
+     */
+    private String wildcards(String word, double density) {
+        StringBuilder pattern = new StringBuilder();
+        for (int i = 0; i < word.length(); i++) {
+            if (random.nextDouble() < density) {
+                pattern.append(WILDCARDS.charAt(random.nextInt(WILDCARDS.length())));
+            }
+            else {
+                pattern.append(word.charAt(i));
+            }
+        }
+        return pattern.toString();
+    }
+
+    /**
+     * Writes a generated workload to a log file.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: java WorkloadGenerator <dictionary> <log> <numOps> [seed] [hitRatio] [wildcardDensity]");
+            return;
+        }
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+        double hitRatio = args.length > 4 ? Double.parseDouble(args[4]) : 0.8;
+        double wildcardDensity = args.length > 5 ? Double.parseDouble(args[5]) : 0.2;
+        WorkloadGenerator generator = new WorkloadGenerator(args[0], seed);
+        Workload workload = generator.generate(Integer.parseInt(args[2]), hitRatio, wildcardDensity, DEFAULT_MIX);
+        workload.write(args[1]);
+        System.out.println("Wrote " + workload.size() + " operations to " + args[1]);
+    }
+}
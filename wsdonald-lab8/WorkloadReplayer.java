@@ -0,0 +1,259 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * WorkloadReplayer
+ *
+ * Plays a Workload against any Lexicon and reports throughput and latency percentiles, checking every result
+ * against what the reference LexiconTrie gives for the same operations from the same starting dictionary.
+ *
+ * Operations can run as fast as possible or at a fixed total rate, over one or more threads. At a fixed rate
+ * each operation has a planned start time set by its place in the log, whichever thread plays it, and its
+ * latency is measured from then, so a slow operation also shows up in the latency of the ones queued behind it.
+ *
+ * With more than one thread, all operations on the same word go to the same thread, in log order, so ADD,
+ * REMOVE and CONTAINS_WORD still give the results the reference does. Other operations depend on the whole
+ * lexicon, so if the workload changes the lexicon they are only checked when running on one thread. None of
+ * the lexicons here are safe to change while being read, so when the workload changes the lexicon and there is
+ * more than one thread, each ADD and REMOVE holds a write lock and everything else a read lock.
+ *
+ * Usage: java WorkloadReplayer <log> <dictionary> [threads] [opsPerSecond] [trie|persistent|sharded]
+ * An opsPerSecond of 0 means as fast as possible.
+ *
+ * @author WS Donaldson
+ */
+public class WorkloadReplayer {
+
+    // how many mismatches a report lists in full
+    private static final int MISMATCHES_SHOWN = 10;
+
+    private WorkloadReplayer() {
+
+    }
+
+    /**
+     * replay
+     *
+     * @param workload - the operations to play
+     * @param dictionary - the file both the target and the reference are loaded from before playing
+     * @param target - makes the lexicon to play against
+     * @param threads - how many threads to play from
+     * @param opsPerSecond - the total rate to play at, or 0 for as fast as possible
+     * @return Report - the results
+     */
+    public static Report replay(Workload workload, String dictionary, Supplier<Lexicon> target,
+                                int threads, double opsPerSecond) throws InterruptedException {
+        List<Workload.Op> ops = workload.ops();
+        boolean mutations = workload.hasMutations();
+
+        //What the reference gives, op by op, in log order
+        Lexicon reference = new LexiconTrie();
+        reference.addWordsFromFile(dictionary);
+        long[] expected = new long[ops.size()];
+        for (int i = 0; i < ops.size(); i++) {
+            expected[i] = ops.get(i).apply(reference);
+        }
+
+        Lexicon lex = target.get();
+        lex.addWordsFromFile(dictionary);
+
+        //Which thread plays which ops
+        List<List<Integer>> parts = new ArrayList<List<Integer>>();
+        for (int t = 0; t < threads; t++) {
+            parts.add(new ArrayList<Integer>());
+        }
+        for (int i = 0; i < ops.size(); i++) {
+            Workload.Op op = ops.get(i);
+            int t = op.type.isPointOp() ? Math.floorMod(op.arg.hashCode(), threads) : i % threads;
+            parts.get(t).add(i);
+        }
+
+        Report report = new Report(ops.size());
+        ReadWriteLock lock = mutations && threads > 1 ? new ReentrantReadWriteLock() : null;
+        boolean paced = opsPerSecond > 0;
+        long start = System.nanoTime();
+        List<Thread> workers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            List<Integer> part = parts.get(t);
+            Thread worker = new Thread(() -> {
+                for (int i : part) {
+                    Workload.Op op = ops.get(i);
+                    long planned = paced ? start + (long) (i * 1e9 / opsPerSecond) : 0;
+                    if (paced) {
+                        long wait = planned - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    }
+                    long begin = System.nanoTime();
+                    long result;
+                    if (lock == null) {
+                        result = op.apply(lex);
+                    }
+                    else if (op.type.mutates()) {
+                        lock.writeLock().lock();
+                        try {
+                            result = op.apply(lex);
+                        } finally {
+                            lock.writeLock().unlock();
+                        }
+                    }
+                    else {
+                        lock.readLock().lock();
+                        try {
+                            result = op.apply(lex);
+                        } finally {
+                            lock.readLock().unlock();
+                        }
+                    }
+                    long end = System.nanoTime();
+                    report.latencies[i] = end - (paced ? planned : begin);
+                    if (threads > 1 && mutations && ! op.type.isPointOp()) {
+                        report.unchecked(i);
+                    }
+                    else if (result != expected[i]) {
+                        report.mismatch(i, op);
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        report.finish(ops, System.nanoTime() - start);
+        return report;
+    }
+
+    /**
+     * Report
+     * What came of a replay: throughput, latency percentiles overall and per operation type,
+     * and any results that didn't match the reference
+     */
+    public static class Report {
+        private final long[] latencies;
+        private final boolean[] checked;
+        private final List<String> mismatches = new ArrayList<String>();
+        private int mismatchCount;
+        private long elapsed;
+        private String summary;
+
+        Report(int numOps) {
+            latencies = new long[numOps];
+            checked = new boolean[numOps];
+            Arrays.fill(checked, true);
+        }
+
+        private void unchecked(int index) {
+            checked[index] = false;
+        }
+
+        private synchronized void mismatch(int index, Workload.Op op) {
+            mismatchCount++;
+            if (mismatches.size() < MISMATCHES_SHOWN) {
+                mismatches.add("#" + index + " " + op);
+            }
+        }
+
+        /**
+         * mismatches
+         *
+         * @return int - the number of results that didn't match the reference
+         */
+        public synchronized int mismatches() {
+            return mismatchCount;
+        }
+
+        /**
+         * opsPerSecond
+         *
+         * @return double - the throughput of the replay
+         */
+        public double opsPerSecond() {
+            return latencies.length / (elapsed / 1e9);
+        }
+
+        private void finish(List<Workload.Op> ops, long elapsed) {
+            this.elapsed = elapsed;
+            int unchecked = 0;
+            for (boolean c : checked) {
+                if (! c) {
+                    unchecked++;
+                }
+            }
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%d ops in %.3f s: %.0f ops/s%n", latencies.length, elapsed / 1e9, opsPerSecond()));
+            sb.append(String.format("%d mismatches, %d not checked%n", mismatchCount, unchecked));
+            for (String mismatch : mismatches) {
+                sb.append("  mismatch ").append(mismatch).append("\n");
+            }
+            sb.append("latency (microseconds)   count      p50      p90      p99    p99.9      max\n");
+            sb.append(percentiles("all", latencies));
+            for (Workload.Type type : Workload.Type.values()) {
+                long[] ofType = new long[latencies.length];
+                int n = 0;
+                for (int i = 0; i < latencies.length; i++) {
+                    if (ops.get(i).type == type) {
+                        ofType[n++] = latencies[i];
+                    }
+                }
+                if (n > 0) {
+                    sb.append(percentiles(type.toString(), Arrays.copyOf(ofType, n)));
+                }
+            }
+            summary = sb.toString();
+        }
+
+        private static String percentiles(String label, long[] values) {
+            long[] sorted = values.clone();
+            Arrays.sort(sorted);
+            if (sorted.length == 0) {
+                return String.format("%-20s %9d%n", label, 0);
+            }
+            return String.format("%-20s %9d %8d %8d %8d %8d %8d%n", label, sorted.length,
+                at(sorted, 0.5), at(sorted, 0.9), at(sorted, 0.99), at(sorted, 0.999), sorted[sorted.length - 1] / 1000);
+        }
+
+        private static long at(long[] sorted, double fraction) {
+            int index = (int) Math.ceil(fraction * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1000;
+        }
+
+        public String toString() {
+            return summary;
+        }
+    }
+
+    /**
+     * Plays a workload log against the chosen implementation and prints the report.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.out.println("Usage: java WorkloadReplayer <log> <dictionary> [threads] [opsPerSecond] [trie|persistent|sharded]");
+            return;
+        }
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        double rate = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+        String impl = args.length > 4 ? args[4] : "trie";
+        Supplier<Lexicon> target;
+        if (impl.equals("trie")) {
+            target = LexiconTrie::new;
+        } else if (impl.equals("persistent")) {
+            target = PersistentLexiconTrie::new;
+        } else if (impl.equals("sharded")) {
+            target = () -> new ShardedLexicon(Runtime.getRuntime().availableProcessors());
+        } else {
+            System.out.println("Unknown implementation \"" + impl + "\".");
+            return;
+        }
+        Workload workload = Workload.read(args[0]);
+        System.out.print(replay(workload, args[1], target, threads, rate));
+    }
+}